@@ -0,0 +1,108 @@
+package jmeter.results;
+
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
+import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Backend listener that records samples with {@link ColumnarResultWriter}
+ * instead of a text JTL. Analyse or convert the file afterwards with
+ * {@link ColumnarResultAnalyzer}.
+ * <p>
+ * Parameters: {@code filename}, which is overwritten if it exists (unlike a
+ * JTL, which JMeter appends to), so give each run its own name, for example
+ * {@code results-${__time(yyyyMMdd-HHmmss)}.jcol}, to keep earlier results;
+ * {@code blockRows}, the rows buffered per label before a block is written
+ * (61 bytes of off-heap memory per row and label); {@code maxBlockAgeSeconds},
+ * after which a partly filled block is written anyway, checked whenever
+ * samples arrive.
+ */
+public class ColumnarBackendListenerClient extends AbstractBackendListenerClient {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarBackendListenerClient.class);
+
+    public static final String FILENAME = "filename";
+    public static final String BLOCK_ROWS = "blockRows";
+    public static final String MAX_BLOCK_AGE_SECONDS = "maxBlockAgeSeconds";
+
+    private static final int DEFAULT_MAX_BLOCK_AGE_SECONDS = 10;
+
+    private final ColumnarSample row = new ColumnarSample();
+    private ColumnarResultWriter writer;
+    private String filename;
+    private long maxBlockAgeMillis;
+
+    @Override
+    public Arguments getDefaultParameters() {
+        Arguments arguments = new Arguments();
+        arguments.addArgument(FILENAME, "results.jcol");
+        arguments.addArgument(BLOCK_ROWS, Integer.toString(ColumnarResultWriter.DEFAULT_BLOCK_ROWS));
+        arguments.addArgument(MAX_BLOCK_AGE_SECONDS, Integer.toString(DEFAULT_MAX_BLOCK_AGE_SECONDS));
+        return arguments;
+    }
+
+    @Override
+    public void setupTest(BackendListenerContext context) throws Exception {
+        filename = context.getParameter(FILENAME, "results.jcol");
+        int blockRows = context.getIntParameter(BLOCK_ROWS, ColumnarResultWriter.DEFAULT_BLOCK_ROWS);
+        maxBlockAgeMillis = context.getIntParameter(MAX_BLOCK_AGE_SECONDS, DEFAULT_MAX_BLOCK_AGE_SECONDS) * 1000L;
+        writer = ColumnarResultWriter.open(Paths.get(filename), blockRows);
+        log.info("Writing columnar results to {} in blocks of {} rows", filename, blockRows);
+        super.setupTest(context);
+    }
+
+    @Override
+    public void handleSampleResults(List<SampleResult> results, BackendListenerContext context) {
+        if (writer.isFailed()) {
+            return;
+        }
+        try {
+            for (SampleResult result : results) {
+                fill(result);
+                writer.write(row);
+            }
+            writer.flushOlderThan(maxBlockAgeMillis);
+        } catch (IOException e) {
+            log.error("Failed to write columnar results to {}, no further samples will be recorded", filename, e);
+        }
+    }
+
+    @Override
+    public void teardownTest(BackendListenerContext context) throws Exception {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            writer = null;
+            super.teardownTest(context);
+        }
+    }
+
+    private void fill(SampleResult result) {
+        row.timeStamp = result.getTimeStamp();
+        row.elapsed = result.getTime();
+        row.label = result.getSampleLabel();
+        row.responseCode = result.getResponseCode();
+        row.responseMessage = result.getResponseMessage();
+        row.threadName = result.getThreadName();
+        row.dataType = result.getDataType();
+        row.success = result.isSuccessful();
+        row.failureMessage = result.getFirstAssertionFailureMessage();
+        row.bytes = result.getBytesAsLong();
+        row.sentBytes = result.getSentBytes();
+        row.grpThreads = result.getGroupThreads();
+        row.allThreads = result.getAllThreads();
+        row.url = result.getUrlAsString();
+        row.latency = result.getLatency();
+        row.idleTime = result.getIdleTime();
+        row.connect = result.getConnectTime();
+    }
+}
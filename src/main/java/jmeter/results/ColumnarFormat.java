@@ -0,0 +1,112 @@
+package jmeter.results;
+
+/**
+ * Layout of the binary columnar results file.
+ *
+ * <pre>
+ * file    := header record*
+ * header  := int MAGIC, short VERSION, short 0, long createdMillis
+ * record  := byte type, int payloadLength, payload
+ * STRING  := int id, UTF-8 bytes
+ * BLOCK   := int labelId, int rows, long baseTimestamp, int localStrings,
+ *            column[COLUMN_COUNT], int[localStrings] localEnds, UTF-8 bytes
+ * column  := rows fixed-width values, see {@link #WIDTHS}
+ * </pre>
+ *
+ * Every block holds samples of a single label. Timestamps are stored as the
+ * difference to the previous row of the block (the first row against the base
+ * timestamp). Low-cardinality strings (label, response code, thread name, data
+ * type) are ids into the shared string table; string ids are assigned in
+ * sequence and a string record always precedes the first block referencing it,
+ * but the same string may appear under more than one id. Per-sample strings
+ * (response message, failure message, URL, see {@link #isLocalString(int)})
+ * are ids into the block's own dictionary: string {@code n} ends at
+ * {@code localEnds[n - 1]} within the block's string bytes. In both tables id
+ * 0 is the empty string, which is never written.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x4A434F4C; // "JCOL"
+    static final short VERSION = 1;
+
+    static final int FILE_HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 5;
+    static final int BLOCK_HEADER_BYTES = 20;
+
+    static final byte RECORD_STRING = 1;
+    static final byte RECORD_BLOCK = 2;
+
+    static final int EMPTY_STRING_ID = 0;
+
+    // -------------------------------
+    // Columns
+    // -------------------------------
+
+    static final int TIMESTAMP_DELTA = 0;
+    static final int ELAPSED = 1;
+    static final int LATENCY = 2;
+    static final int CONNECT = 3;
+    static final int IDLE_TIME = 4;
+    static final int BYTES = 5;
+    static final int SENT_BYTES = 6;
+    static final int GRP_THREADS = 7;
+    static final int ALL_THREADS = 8;
+    static final int RESPONSE_CODE = 9;
+    static final int RESPONSE_MESSAGE = 10;
+    static final int THREAD_NAME = 11;
+    static final int DATA_TYPE = 12;
+    static final int FAILURE_MESSAGE = 13;
+    static final int URL = 14;
+    static final int SUCCESS = 15;
+
+    static final int COLUMN_COUNT = 16;
+
+    static final int[] WIDTHS = {4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 1};
+
+    static final int ROW_BYTES;
+
+    private static final int[] ROW_OFFSETS = new int[COLUMN_COUNT];
+
+    static {
+        int offset = 0;
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            ROW_OFFSETS[column] = offset;
+            offset += WIDTHS[column];
+        }
+        ROW_BYTES = offset;
+    }
+
+    private ColumnarFormat() {
+    }
+
+    /** Offset of a column inside a block body laid out for {@code rows} rows. */
+    static int columnOffset(int column, int rows) {
+        return ROW_OFFSETS[column] * rows;
+    }
+
+    /** Payload bytes of a block, not counting its local string bytes. */
+    static long blockFixedBytes(int rows, int localStrings) {
+        return BLOCK_HEADER_BYTES + (long) ROW_BYTES * rows + 4L * localStrings;
+    }
+
+    /** True for string columns that hold ids into the shared string table. */
+    static boolean isSharedString(int column) {
+        return column == RESPONSE_CODE || column == THREAD_NAME || column == DATA_TYPE;
+    }
+
+    /** True for string columns that hold ids into the block's own dictionary. */
+    static boolean isLocalString(int column) {
+        return column == RESPONSE_MESSAGE || column == FAILURE_MESSAGE || column == URL;
+    }
+
+    /** Narrows a counter to the fixed 4-byte column width, saturating instead of wrapping. */
+    static int saturate(long value) {
+        if (value > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        if (value < Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,221 @@
+package jmeter.results;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command-line analyzer for files written by {@link ColumnarResultWriter}.
+ *
+ * <pre>
+ * java -cp exampleProj.jar jmeter.results.ColumnarResultAnalyzer summary results.jcol [intervalSeconds]
+ * java -cp exampleProj.jar jmeter.results.ColumnarResultAnalyzer export results.jcol results.csv
+ * </pre>
+ *
+ * {@code summary} scans the blocks in parallel and prints per-label
+ * percentiles, a time series and the error breakdown. {@code export} writes a
+ * standard JMeter CSV that the HTML report generator ({@code jmeter -g}) reads.
+ * <p>
+ * The listener only sees parent samples, so unlike a JTL saved with
+ * {@code subresults=true} the export has no sub-result rows, and a report
+ * built from it can differ from one built from that JTL.
+ */
+public class ColumnarResultAnalyzer {
+
+    static final String CSV_HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,"
+            + "success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 60;
+    private static final double[] PERCENTILES = {50, 90, 95, 99};
+    private static final int[] SIZE_AND_THREAD_COLUMNS = {ColumnarFormat.BYTES, ColumnarFormat.SENT_BYTES,
+            ColumnarFormat.GRP_THREADS, ColumnarFormat.ALL_THREADS};
+    private static final int[] TIMING_COLUMNS = {ColumnarFormat.LATENCY, ColumnarFormat.IDLE_TIME,
+            ColumnarFormat.CONNECT};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && "summary".equals(args[0]) && args.length <= 3) {
+            long intervalSeconds = args.length == 3 ? Long.parseLong(args[2]) : DEFAULT_INTERVAL_SECONDS;
+            if (intervalSeconds < 1) {
+                throw new IllegalArgumentException("intervalSeconds must be positive: " + intervalSeconds);
+            }
+            try (ColumnarResultReader reader = ColumnarResultReader.open(Paths.get(args[1]))) {
+                warnIfTruncated(reader);
+                printSummary(reader, summarize(reader, intervalSeconds * 1000), System.out);
+            }
+        } else if (args.length == 3 && "export".equals(args[0])) {
+            try (ColumnarResultReader reader = ColumnarResultReader.open(Paths.get(args[1]))) {
+                warnIfTruncated(reader);
+                long rows = exportCsv(reader, Paths.get(args[2]));
+                System.out.println("Exported " + rows + " samples to " + args[2]);
+            }
+        } else {
+            System.err.println("Usage: ColumnarResultAnalyzer summary <file> [intervalSeconds]");
+            System.err.println("       ColumnarResultAnalyzer export <file> <csvFile>");
+            System.exit(2);
+        }
+    }
+
+    static ResultStatistics summarize(ColumnarResultReader reader, long intervalMillis) {
+        return reader.blocks().parallelStream().collect(
+                () -> new ResultStatistics(reader, intervalMillis),
+                ResultStatistics::add,
+                ResultStatistics::merge);
+    }
+
+    private static void warnIfTruncated(ColumnarResultReader reader) {
+        if (reader.isTruncated()) {
+            System.err.println("Warning: incomplete or corrupt record at offset " + reader.validLength()
+                    + ", the rest of the file was ignored");
+        }
+    }
+
+    // -------------------------------
+    // Summary
+    // -------------------------------
+
+    static void printSummary(ColumnarResultReader reader, ResultStatistics statistics, PrintStream out) {
+        out.printf(Locale.ROOT, "%-40s %10s %8s %7s %8s %8s %8s %8s %8s %8s %8s %10s %10s %10s%n",
+                "Label", "Samples", "Errors", "Error%", "Avg", "Min", "Max",
+                "P50", "P90", "P95", "P99", "Through/s", "RecvKB/s", "SentKB/s");
+        for (Map.Entry<Integer, ResultStatistics.LabelStatistics> label : statistics.labels().entrySet()) {
+            printLabel(out, reader.string(label.getKey()), label.getValue());
+        }
+        printLabel(out, "TOTAL", statistics.total());
+
+        out.println();
+        out.printf(Locale.ROOT, "Time series (%d s intervals)%n", statistics.intervalMillis() / 1000);
+        out.printf(Locale.ROOT, "%-24s %10s %8s %8s %10s%n", "Start", "Samples", "Errors", "Avg", "Through/s");
+        double intervalSeconds = statistics.intervalMillis() / 1000.0;
+        for (Map.Entry<Long, long[]> point : statistics.timeSeries().entrySet()) {
+            long[] values = point.getValue();
+            out.printf(Locale.ROOT, "%-24s %10d %8d %8d %10.2f%n",
+                    Instant.ofEpochMilli(point.getKey()), values[0], values[2],
+                    values[1] / values[0], values[0] / intervalSeconds);
+        }
+
+        out.println();
+        out.println("Errors");
+        List<Map.Entry<List<String>, long[]>> errors = new ArrayList<>(statistics.errors().entrySet());
+        errors.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        long totalErrors = 0;
+        for (Map.Entry<List<String>, long[]> error : errors) {
+            totalErrors += error.getValue()[0];
+        }
+        out.printf(Locale.ROOT, "%10s %8s %-12s %s%n", "Count", "% Errors", "Code", "Message");
+        for (Map.Entry<List<String>, long[]> error : errors) {
+            long count = error.getValue()[0];
+            out.printf(Locale.ROOT, "%10d %7.2f%% %-12s %s%n", count, 100.0 * count / totalErrors,
+                    error.getKey().get(0), error.getKey().get(1).replaceAll("\\s*[\\r\\n]+\\s*", " "));
+        }
+    }
+
+    private static void printLabel(PrintStream out, String label, ResultStatistics.LabelStatistics stats) {
+        if (stats.samples == 0) {
+            return;
+        }
+        double seconds = stats.durationSeconds();
+        out.printf(Locale.ROOT, "%-40s %10d %8d %6.2f%% %8d %8d %8d %8d %8d %8d %8d %10.2f %10.2f %10.2f%n",
+                label, stats.samples, stats.errors, 100.0 * stats.errors / stats.samples,
+                stats.elapsedSum / stats.samples, stats.elapsedMin, stats.elapsedMax,
+                stats.histogram.percentile(PERCENTILES[0]), stats.histogram.percentile(PERCENTILES[1]),
+                stats.histogram.percentile(PERCENTILES[2]), stats.histogram.percentile(PERCENTILES[3]),
+                stats.samples / seconds, stats.bytes / 1024.0 / seconds, stats.sentBytes / 1024.0 / seconds);
+    }
+
+    // -------------------------------
+    // CSV export
+    // -------------------------------
+
+    /**
+     * Writes all samples as JMeter CSV, block by block in file order. Rows are
+     * grouped per label block and not sorted by timestamp; within a block they
+     * are in the order the listener received them. Returns the number of
+     * samples written.
+     */
+    static long exportCsv(ColumnarResultReader reader, Path csv) throws IOException {
+        String[] quoted = new String[reader.stringCount()];
+        for (int id = 0; id < quoted.length; id++) {
+            quoted[id] = quote(reader.string(id));
+        }
+
+        long rows = 0;
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(csv), StandardCharsets.UTF_8), 1 << 20)) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+            for (ColumnarResultReader.Block block : reader.blocks()) {
+                String[] localQuoted = new String[block.localStringCount() + 1];
+                long timeStamp = 0;
+                for (int row = 0; row < block.rows(); row++) {
+                    timeStamp = block.nextTimestamp(timeStamp, row);
+                    writeRow(out, block, row, timeStamp, quoted, localQuoted);
+                }
+                rows += block.rows();
+            }
+        }
+        return rows;
+    }
+
+    private static void writeRow(Writer out, ColumnarResultReader.Block block, int row, long timeStamp,
+                                 String[] quoted, String[] localQuoted) throws IOException {
+        out.write(Long.toString(timeStamp));
+        out.write(',');
+        out.write(Integer.toString(block.getInt(ColumnarFormat.ELAPSED, row)));
+        out.write(',');
+        out.write(quoted[block.labelId()]);
+        out.write(',');
+        out.write(quoted[block.getInt(ColumnarFormat.RESPONSE_CODE, row)]);
+        out.write(',');
+        out.write(local(block, block.getInt(ColumnarFormat.RESPONSE_MESSAGE, row), localQuoted));
+        out.write(',');
+        out.write(quoted[block.getInt(ColumnarFormat.THREAD_NAME, row)]);
+        out.write(',');
+        out.write(quoted[block.getInt(ColumnarFormat.DATA_TYPE, row)]);
+        out.write(',');
+        out.write(block.isSuccess(row) ? "true" : "false");
+        out.write(',');
+        out.write(local(block, block.getInt(ColumnarFormat.FAILURE_MESSAGE, row), localQuoted));
+        for (int column : SIZE_AND_THREAD_COLUMNS) {
+            out.write(',');
+            out.write(Integer.toString(block.getInt(column, row)));
+        }
+        out.write(',');
+        out.write(local(block, block.getInt(ColumnarFormat.URL, row), localQuoted));
+        for (int column : TIMING_COLUMNS) {
+            out.write(',');
+            out.write(Integer.toString(block.getInt(column, row)));
+        }
+        out.write('\n');
+    }
+
+    /** Quoted entry of the block's dictionary, decoded once per block. */
+    private static String local(ColumnarResultReader.Block block, int id, String[] localQuoted) {
+        String value = localQuoted[id];
+        if (value == null) {
+            value = quote(block.localString(id));
+            localQuoted[id] = value;
+        }
+        return value;
+    }
+
+    /** Quotes like JMeter's CSVSaveService: only values containing the delimiter, a quote or a line break. */
+    static String quote(String value) {
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
@@ -0,0 +1,320 @@
+package jmeter.results;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+/**
+ * Memory-mapped view of a columnar results file. Opening the file walks the
+ * record headers once to load the string table and index the blocks; block
+ * contents are only touched when a {@link Block} is read, and reads use
+ * absolute offsets so blocks can be scanned from several threads at once.
+ * <p>
+ * Reading stops at the first record that is incomplete or does not decode, for
+ * example the tail of a file cut short by a crashed test; everything before it
+ * is still analysed and {@link #isTruncated()} reports the cut. A block
+ * decodes when its header matches its length, every string id it holds
+ * refers to a shared string written before it or to its own dictionary, and
+ * its dictionary offsets are in order.
+ */
+public class ColumnarResultReader implements Closeable {
+
+    /** Files larger than this are mapped as several segments, each ending on a record boundary. */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final String[] strings;
+    private final List<Block> blocks;
+    private final long validLength;
+    private final boolean truncated;
+
+    private ColumnarResultReader(FileChannel channel, String[] strings, List<Block> blocks,
+                                 long validLength, boolean truncated) {
+        this.channel = channel;
+        this.strings = strings;
+        this.blocks = blocks;
+        this.validLength = validLength;
+        this.truncated = truncated;
+    }
+
+    public static ColumnarResultReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return index(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Shared string by id; a string written under several ids resolves to one instance. */
+    public String string(int id) {
+        return strings[id];
+    }
+
+    public int stringCount() {
+        return strings.length;
+    }
+
+    public List<Block> blocks() {
+        return blocks;
+    }
+
+    /** True if reading stopped at an incomplete or corrupt record before the end of the file. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /** Offset just past the last record that was read. */
+    public long validLength() {
+        return validLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // -------------------------------
+    // Indexing
+    // -------------------------------
+
+    private static ColumnarResultReader index(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(ColumnarFormat.FILE_HEADER_BYTES);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != ColumnarFormat.MAGIC) {
+            throw new IOException("Not a columnar results file");
+        }
+        short version = header.getShort(4);
+        if (version != ColumnarFormat.VERSION) {
+            throw new IOException("Unsupported columnar results version " + version);
+        }
+
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+        List<Integer> canonicalIds = new ArrayList<>();
+        canonicalIds.add(ColumnarFormat.EMPTY_STRING_ID);
+        Map<String, Integer> firstIds = new HashMap<>();
+        List<long[]> blockRecords = new ArrayList<>();
+        ByteBuffer recordHeader = ByteBuffer.allocate(ColumnarFormat.RECORD_HEADER_BYTES);
+        ByteBuffer blockHeader = ByteBuffer.allocate(ColumnarFormat.BLOCK_HEADER_BYTES);
+        long position = ColumnarFormat.FILE_HEADER_BYTES;
+
+        while (size - position >= ColumnarFormat.RECORD_HEADER_BYTES) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, position);
+            byte type = recordHeader.get(0);
+            int length = recordHeader.getInt(1);
+            long payload = position + ColumnarFormat.RECORD_HEADER_BYTES;
+            if (length < 0 || payload + length > size) {
+                break;
+            }
+            if (type == ColumnarFormat.RECORD_STRING) {
+                if (length < 4) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(length);
+                readFully(channel, record, payload);
+                if (record.getInt(0) != strings.size()) {
+                    break;
+                }
+                String value = new String(record.array(), 4, length - 4, StandardCharsets.UTF_8);
+                Integer first = firstIds.putIfAbsent(value, strings.size());
+                canonicalIds.add(first == null ? strings.size() : first);
+                strings.add(first == null ? value : strings.get(first));
+            } else if (type == ColumnarFormat.RECORD_BLOCK) {
+                if (length < ColumnarFormat.BLOCK_HEADER_BYTES) {
+                    break;
+                }
+                blockHeader.clear();
+                readFully(channel, blockHeader, payload);
+                int labelId = blockHeader.getInt(0);
+                int rows = blockHeader.getInt(4);
+                int localStrings = blockHeader.getInt(16);
+                if (labelId < 0 || labelId >= strings.size() || rows < 0 || rows > ColumnarResultWriter.MAX_BLOCK_ROWS
+                        || localStrings < 0 || ColumnarFormat.blockFixedBytes(rows, localStrings) > length
+                        || !localStringsEnd(channel, payload, rows, localStrings, length)) {
+                    break;
+                }
+                blockRecords.add(new long[]{payload, length, canonicalIds.get(labelId), strings.size()});
+            } else {
+                break;
+            }
+            position = payload + length;
+        }
+
+        List<Block> blocks = mapBlocks(channel, blockRecords);
+        OptionalInt firstInvalid = IntStream.range(0, blocks.size()).parallel()
+                .filter(i -> !blocks.get(i).isValid((int) blockRecords.get(i)[3]))
+                .min();
+        if (firstInvalid.isPresent()) {
+            int cut = firstInvalid.getAsInt();
+            return new ColumnarResultReader(channel, strings.toArray(new String[0]),
+                    Collections.unmodifiableList(new ArrayList<>(blocks.subList(0, cut))),
+                    blockRecords.get(cut)[0] - ColumnarFormat.RECORD_HEADER_BYTES, true);
+        }
+        return new ColumnarResultReader(channel, strings.toArray(new String[0]),
+                blocks, position, position != size);
+    }
+
+    private static List<Block> mapBlocks(FileChannel channel, List<long[]> records) throws IOException {
+        List<Block> blocks = new ArrayList<>(records.size());
+        int first = 0;
+        while (first < records.size()) {
+            long start = records.get(first)[0];
+            int last = first;
+            while (last + 1 < records.size()) {
+                long[] next = records.get(last + 1);
+                if (next[0] + next[1] - start > SEGMENT_BYTES) {
+                    break;
+                }
+                last++;
+            }
+            long end = records.get(last)[0] + records.get(last)[1];
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (int i = first; i <= last; i++) {
+                long[] record = records.get(i);
+                blocks.add(new Block(segment, (int) (record[0] - start), (int) record[2]));
+            }
+            first = last + 1;
+        }
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /** Checks that the last local string ends exactly at the end of the block. */
+    private static boolean localStringsEnd(FileChannel channel, long payload, int rows, int localStrings, int length)
+            throws IOException {
+        long fixed = ColumnarFormat.blockFixedBytes(rows, localStrings);
+        if (localStrings == 0) {
+            return fixed == length;
+        }
+        ByteBuffer lastEnd = ByteBuffer.allocate(4);
+        readFully(channel, lastEnd, payload + fixed - 4);
+        return lastEnd.getInt(0) == length - fixed;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at offset " + position);
+            }
+            position += read;
+        }
+    }
+
+    /** One label's block; columns are read straight from the mapped file. */
+    public static final class Block {
+
+        private final ByteBuffer data;
+        private final int labelId;
+        private final int rows;
+        private final long baseTimestamp;
+        private final int localStrings;
+        private final int localEnds;
+        private final int localBytes;
+        private final int[] offsets = new int[ColumnarFormat.COLUMN_COUNT];
+
+        /** Header already validated by {@link #index(FileChannel)}; {@code labelId} is canonical. */
+        Block(ByteBuffer data, int offset, int labelId) {
+            this.data = data;
+            this.labelId = labelId;
+            this.rows = data.getInt(offset + 4);
+            this.baseTimestamp = data.getLong(offset + 8);
+            this.localStrings = data.getInt(offset + 16);
+            int body = offset + ColumnarFormat.BLOCK_HEADER_BYTES;
+            for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+                offsets[column] = body + ColumnarFormat.columnOffset(column, rows);
+            }
+            this.localEnds = body + ColumnarFormat.ROW_BYTES * rows;
+            this.localBytes = localEnds + 4 * localStrings;
+        }
+
+        /** Canonical label id: blocks of the same label share it even if the label was re-interned. */
+        public int labelId() {
+            return labelId;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        public long baseTimestamp() {
+            return baseTimestamp;
+        }
+
+        int localStringCount() {
+            return localStrings;
+        }
+
+        /** Entry of the block's own dictionary, as referenced by the per-sample string columns. */
+        String localString(int id) {
+            if (id == ColumnarFormat.EMPTY_STRING_ID) {
+                return "";
+            }
+            int start = id == 1 ? 0 : data.getInt(localEnds + 4 * (id - 2));
+            int end = data.getInt(localEnds + 4 * (id - 1));
+            byte[] utf8 = new byte[end - start];
+            ByteBuffer view = data.duplicate();
+            view.position(localBytes + start);
+            view.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        /** Checks the string id columns and dictionary offsets against {@code sharedStrings} known strings. */
+        boolean isValid(int sharedStrings) {
+            int previousEnd = 0;
+            for (int id = 1; id <= localStrings; id++) {
+                int end = data.getInt(localEnds + 4 * (id - 1));
+                if (end < previousEnd) {
+                    return false;
+                }
+                previousEnd = end;
+            }
+            for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+                int limit;
+                if (ColumnarFormat.isSharedString(column)) {
+                    limit = sharedStrings;
+                } else if (ColumnarFormat.isLocalString(column)) {
+                    limit = localStrings + 1;
+                } else {
+                    continue;
+                }
+                for (int row = 0; row < rows; row++) {
+                    int id = getInt(column, row);
+                    if (id < 0 || id >= limit) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        int getInt(int column, int row) {
+            return data.getInt(offsets[column] + row * 4);
+        }
+
+        boolean isSuccess(int row) {
+            return data.get(offsets[ColumnarFormat.SUCCESS] + row) != 0;
+        }
+
+        /** Sample timestamp of {@code row}, given the timestamp of the row before it. */
+        long nextTimestamp(long previous, int row) {
+            return (row == 0 ? baseTimestamp : previous) + getInt(ColumnarFormat.TIMESTAMP_DELTA, row);
+        }
+    }
+}
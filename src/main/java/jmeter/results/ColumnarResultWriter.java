@@ -0,0 +1,381 @@
+package jmeter.results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends samples to a columnar results file (see {@link ColumnarFormat}).
+ * Rows are buffered off-heap per label and written as one block once the
+ * block is full; string records are queued and go out in the same gathering
+ * write as the next block, so the file only ever sees large sequential writes.
+ * Call {@link #flushOlderThan(long)} regularly so rarely sampled labels reach
+ * the file too; that bounds what a crash can lose and lets the analyzer read a
+ * file while the test is still running.
+ * <p>
+ * Memory: every label seen keeps a direct buffer of
+ * {@code ColumnarFormat.ROW_BYTES} (61) bytes per block row for the whole run,
+ * about 250 KB at the default {@value #DEFAULT_BLOCK_ROWS} rows and 4 MB at
+ * {@value #MAX_BLOCK_ROWS}, plus the distinct per-sample strings of its
+ * current block (a block is written early once these reach 8 MB).
+ * <p>
+ * The shared string table is an LRU of {@value #MAX_SHARED_STRINGS} entries;
+ * a string that was evicted and comes back is written again under a new id.
+ * <p>
+ * If a write fails the file is truncated back to the end of the last complete
+ * record and the writer stops accepting samples, so everything written before
+ * the failure stays readable.
+ * <p>
+ * Not thread-safe: JMeter's backend listener feeds it from a single consumer thread.
+ */
+public class ColumnarResultWriter implements Closeable {
+
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+    public static final int MAX_BLOCK_ROWS = 1 << 16;
+
+    static final int MAX_SHARED_STRINGS = 1 << 16;
+    static final int MAX_BLOCK_STRING_BYTES = 8 << 20;
+
+    private final FileChannel channel;
+    private final int blockRows;
+    private final Map<String, Integer> stringIds = new LinkedHashMap<String, Integer>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_SHARED_STRINGS;
+        }
+    };
+    private final Map<String, LabelBlock> blocks = new HashMap<>();
+    private ByteBuffer pendingStrings = ByteBuffer.allocateDirect(4096);
+    private ByteBuffer scratch = ByteBuffer.allocateDirect(64);
+    private int nextStringId = ColumnarFormat.EMPTY_STRING_ID + 1;
+    private long committed;
+    private boolean failed;
+    private boolean closed;
+
+    private ColumnarResultWriter(FileChannel channel, int blockRows) {
+        this.channel = channel;
+        this.blockRows = blockRows;
+    }
+
+    public static ColumnarResultWriter open(Path file, int blockRows) throws IOException {
+        if (blockRows < 1 || blockRows > MAX_BLOCK_ROWS) {
+            throw new IllegalArgumentException("blockRows must be between 1 and " + MAX_BLOCK_ROWS + ": " + blockRows);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return open(channel, blockRows);
+    }
+
+    /** Writes the file header to an empty, writable channel; closes the channel if that fails. */
+    static ColumnarResultWriter open(FileChannel channel, int blockRows) throws IOException {
+        ColumnarResultWriter writer = new ColumnarResultWriter(channel, blockRows);
+        try {
+            writer.writeFileHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    public void write(ColumnarSample sample) throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+        if (failed) {
+            throw new IOException("Writer stopped after an earlier write failure");
+        }
+        String label = sample.label == null ? "" : sample.label;
+        LabelBlock block = blocks.get(label);
+        if (block == null) {
+            block = new LabelBlock(label, blockRows);
+            blocks.put(label, block);
+        }
+        if (!block.accepts(sample.timeStamp)) {
+            writeBlock(block);
+        }
+        block.append(sample,
+                intern(sample.responseCode),
+                intern(sample.threadName),
+                intern(sample.dataType));
+        if (block.isFull()) {
+            writeBlock(block);
+        }
+    }
+
+    /** True once a write failed; no further samples are written. */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /** Writes every block whose first pending row was appended at least {@code maxAgeMillis} ago. */
+    public void flushOlderThan(long maxAgeMillis) throws IOException {
+        if (failed || closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (LabelBlock block : blocks.values()) {
+            if (block.rows > 0 && now - block.startedMillis >= maxAgeMillis) {
+                writeBlock(block);
+            }
+        }
+    }
+
+    /** Writes every partially filled block, e.g. before handing the file to the analyzer. */
+    public void flush() throws IOException {
+        List<String> labels = new ArrayList<>(blocks.keySet());
+        labels.sort(null);
+        for (String label : labels) {
+            LabelBlock block = blocks.get(label);
+            if (block.rows > 0) {
+                writeBlock(block);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (!failed) {
+                flush();
+            }
+        } finally {
+            closed = true;
+            blocks.clear();
+            channel.close();
+        }
+    }
+
+    // -------------------------------
+    // Encoding
+    // -------------------------------
+
+    private void writeFileHeader() throws IOException {
+        ByteBuffer header = scratch(ColumnarFormat.FILE_HEADER_BYTES);
+        header.putInt(ColumnarFormat.MAGIC)
+                .putShort(ColumnarFormat.VERSION)
+                .putShort((short) 0)
+                .putLong(System.currentTimeMillis());
+        header.flip();
+        append(header);
+    }
+
+    /** Returns the shared id of {@code value}, queueing a string record if it is new. */
+    private int intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return ColumnarFormat.EMPTY_STRING_ID;
+        }
+        Integer id = stringIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        int newId = nextStringId++;
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        pendingStrings = ensureCapacity(pendingStrings, ColumnarFormat.RECORD_HEADER_BYTES + 4 + utf8.length);
+        pendingStrings.put(ColumnarFormat.RECORD_STRING)
+                .putInt(4 + utf8.length)
+                .putInt(newId)
+                .put(utf8);
+        stringIds.put(value, newId);
+        return newId;
+    }
+
+    private void writeBlock(LabelBlock block) throws IOException {
+        int labelId = intern(block.label);
+        ByteBuffer header = scratch(ColumnarFormat.RECORD_HEADER_BYTES + ColumnarFormat.BLOCK_HEADER_BYTES);
+        header.put(ColumnarFormat.RECORD_BLOCK)
+                .putInt((int) ColumnarFormat.blockFixedBytes(block.rows, block.localCount) + block.localBytes.position())
+                .putInt(labelId)
+                .putInt(block.rows)
+                .putLong(block.baseTimestamp)
+                .putInt(block.localCount);
+        header.flip();
+
+        ByteBuffer[] parts = new ByteBuffer[ColumnarFormat.COLUMN_COUNT + 4];
+        pendingStrings.flip();
+        parts[0] = pendingStrings;
+        parts[1] = header;
+        for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+            parts[column + 2] = block.column(column);
+        }
+        parts[ColumnarFormat.COLUMN_COUNT + 2] = flipped(block.localEnds);
+        parts[ColumnarFormat.COLUMN_COUNT + 3] = flipped(block.localBytes);
+        append(parts);
+        pendingStrings.clear();
+        block.reset();
+    }
+
+    /**
+     * Writes whole records. On failure the partial bytes are cut off again and
+     * the writer is marked failed, so the reader never sees a half record
+     * followed by more data.
+     */
+    private void append(ByteBuffer... parts) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer part : parts) {
+            remaining += part.remaining();
+        }
+        try {
+            while (remaining > 0) {
+                remaining -= channel.write(parts);
+            }
+        } catch (IOException e) {
+            failed = true;
+            try {
+                channel.truncate(committed);
+                channel.position(committed);
+            } catch (IOException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+        committed = channel.position();
+    }
+
+    private ByteBuffer scratch(int size) {
+        if (scratch.capacity() < size) {
+            scratch = ByteBuffer.allocateDirect(Math.max(size, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        return scratch;
+    }
+
+    private static ByteBuffer flipped(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view;
+    }
+
+    /** Grows a direct buffer in write mode so that {@code extra} more bytes fit. */
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Pending rows of one label: one fixed-width region per column plus the
+     * block's own dictionary for the per-sample string columns.
+     */
+    private static final class LabelBlock {
+
+        final String label;
+        final int capacity;
+        final ByteBuffer columns;
+        final int[] offsets = new int[ColumnarFormat.COLUMN_COUNT];
+        final Map<String, Integer> localIds = new HashMap<>();
+        ByteBuffer localEnds = ByteBuffer.allocateDirect(256);
+        ByteBuffer localBytes = ByteBuffer.allocateDirect(4096);
+        int localCount;
+        int rows;
+        long startedMillis;
+        long baseTimestamp;
+        long lastTimestamp;
+
+        LabelBlock(String label, int capacity) {
+            this.label = label;
+            this.capacity = capacity;
+            this.columns = ByteBuffer.allocateDirect(ColumnarFormat.ROW_BYTES * capacity);
+            for (int column = 0; column < ColumnarFormat.COLUMN_COUNT; column++) {
+                offsets[column] = ColumnarFormat.columnOffset(column, capacity);
+            }
+        }
+
+        /** A non-empty block only takes rows whose timestamp delta fits the 4-byte column. */
+        boolean accepts(long timeStamp) {
+            if (rows == 0) {
+                return true;
+            }
+            long delta = timeStamp - lastTimestamp;
+            return delta >= Integer.MIN_VALUE && delta <= Integer.MAX_VALUE;
+        }
+
+        boolean isFull() {
+            return rows == capacity || localBytes.position() >= MAX_BLOCK_STRING_BYTES;
+        }
+
+        void append(ColumnarSample sample, int responseCode, int threadName, int dataType) {
+            if (rows == 0) {
+                startedMillis = System.currentTimeMillis();
+                baseTimestamp = sample.timeStamp;
+                lastTimestamp = sample.timeStamp;
+            }
+            putInt(ColumnarFormat.TIMESTAMP_DELTA, (int) (sample.timeStamp - lastTimestamp));
+            putInt(ColumnarFormat.ELAPSED, ColumnarFormat.saturate(sample.elapsed));
+            putInt(ColumnarFormat.LATENCY, ColumnarFormat.saturate(sample.latency));
+            putInt(ColumnarFormat.CONNECT, ColumnarFormat.saturate(sample.connect));
+            putInt(ColumnarFormat.IDLE_TIME, ColumnarFormat.saturate(sample.idleTime));
+            putInt(ColumnarFormat.BYTES, ColumnarFormat.saturate(sample.bytes));
+            putInt(ColumnarFormat.SENT_BYTES, ColumnarFormat.saturate(sample.sentBytes));
+            putInt(ColumnarFormat.GRP_THREADS, sample.grpThreads);
+            putInt(ColumnarFormat.ALL_THREADS, sample.allThreads);
+            putInt(ColumnarFormat.RESPONSE_CODE, responseCode);
+            putInt(ColumnarFormat.RESPONSE_MESSAGE, local(sample.responseMessage));
+            putInt(ColumnarFormat.THREAD_NAME, threadName);
+            putInt(ColumnarFormat.DATA_TYPE, dataType);
+            putInt(ColumnarFormat.FAILURE_MESSAGE, local(sample.failureMessage));
+            putInt(ColumnarFormat.URL, local(sample.url));
+            columns.put(offsets[ColumnarFormat.SUCCESS] + rows, (byte) (sample.success ? 1 : 0));
+            lastTimestamp = sample.timeStamp;
+            rows++;
+        }
+
+        ByteBuffer column(int column) {
+            ByteBuffer slice = columns.duplicate();
+            slice.limit(offsets[column] + ColumnarFormat.WIDTHS[column] * rows);
+            slice.position(offsets[column]);
+            return slice;
+        }
+
+        void reset() {
+            rows = 0;
+            localCount = 0;
+            localIds.clear();
+            localEnds.clear();
+            localBytes.clear();
+        }
+
+        private int local(String value) {
+            if (value == null || value.isEmpty()) {
+                return ColumnarFormat.EMPTY_STRING_ID;
+            }
+            Integer id = localIds.get(value);
+            if (id != null) {
+                return id;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            localBytes = ensureCapacity(localBytes, utf8.length);
+            localBytes.put(utf8);
+            localEnds = ensureCapacity(localEnds, 4);
+            localEnds.putInt(localBytes.position());
+            localCount++;
+            localIds.put(value, localCount);
+            return localCount;
+        }
+
+        private void putInt(int column, int value) {
+            columns.putInt(offsets[column] + rows * 4, value);
+        }
+    }
+}
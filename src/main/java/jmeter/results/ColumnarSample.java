@@ -0,0 +1,26 @@
+package jmeter.results;
+
+/**
+ * One row of the results file, using the field names of JMeter's CSV output.
+ * Instances are mutable so the writer and the exporter can reuse a single one.
+ */
+public class ColumnarSample {
+
+    public long timeStamp;
+    public long elapsed;
+    public String label;
+    public String responseCode;
+    public String responseMessage;
+    public String threadName;
+    public String dataType;
+    public boolean success;
+    public String failureMessage;
+    public long bytes;
+    public long sentBytes;
+    public int grpThreads;
+    public int allThreads;
+    public String url;
+    public long latency;
+    public long idleTime;
+    public long connect;
+}
@@ -0,0 +1,78 @@
+package jmeter.results;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of millisecond values used for percentiles. Values
+ * below 1024 ms are counted exactly; larger values fall into 128 buckets per
+ * power of two, so a reported percentile is at most 1/128 (under 0.8%) above
+ * the exact one and never above the recorded maximum.
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_LIMIT = 1024;
+    private static final int LINEAR_BITS = 10;
+    private static final int SUB_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private long[] counts = new long[64];
+    private long total;
+    private long max;
+
+    void record(long value) {
+        long v = Math.max(0, value);
+        int index = index(v);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index]++;
+        total++;
+        max = Math.max(max, v);
+    }
+
+    void merge(LatencyHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /** Smallest recorded value (bucket upper bound) that covers {@code percent} of all values. */
+    long percentile(double percent) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + sub;
+    }
+
+    private static long highestValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) * width) + width - 1;
+    }
+}
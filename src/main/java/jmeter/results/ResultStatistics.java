@@ -0,0 +1,154 @@
+package jmeter.results;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates decoded blocks into per-label statistics, a time series and an
+ * error breakdown. Each scan thread fills its own instance; partial results
+ * are combined with {@link #merge(ResultStatistics)}.
+ */
+final class ResultStatistics {
+
+    private final ColumnarResultReader reader;
+    private final long intervalMillis;
+    private final TreeMap<Integer, LabelStatistics> labels = new TreeMap<>();
+    private final TreeMap<Long, long[]> timeSeries = new TreeMap<>();
+    private final Map<List<String>, long[]> errors = new HashMap<>();
+
+    ResultStatistics(ColumnarResultReader reader, long intervalMillis) {
+        this.reader = reader;
+        this.intervalMillis = intervalMillis;
+    }
+
+    void add(ColumnarResultReader.Block block) {
+        LabelStatistics label = labels.computeIfAbsent(block.labelId(), k -> new LabelStatistics());
+        long timeStamp = 0;
+        long[] point = null;
+        long pointStart = Long.MIN_VALUE;
+        String[] messages = null;
+        for (int row = 0; row < block.rows(); row++) {
+            timeStamp = block.nextTimestamp(timeStamp, row);
+            int elapsed = block.getInt(ColumnarFormat.ELAPSED, row);
+            boolean success = block.isSuccess(row);
+            label.record(timeStamp, elapsed, success,
+                    block.getInt(ColumnarFormat.BYTES, row), block.getInt(ColumnarFormat.SENT_BYTES, row));
+
+            long start = Math.floorDiv(timeStamp, intervalMillis) * intervalMillis;
+            if (start != pointStart) {
+                pointStart = start;
+                point = timeSeries.computeIfAbsent(start, k -> new long[3]);
+            }
+            point[0]++;
+            point[1] += elapsed;
+            if (!success) {
+                point[2]++;
+                int message = block.getInt(ColumnarFormat.FAILURE_MESSAGE, row);
+                if (message == ColumnarFormat.EMPTY_STRING_ID) {
+                    message = block.getInt(ColumnarFormat.RESPONSE_MESSAGE, row);
+                }
+                if (messages == null) {
+                    messages = new String[block.localStringCount() + 1];
+                }
+                if (messages[message] == null) {
+                    messages[message] = block.localString(message);
+                }
+                List<String> key = Arrays.asList(reader.string(block.getInt(ColumnarFormat.RESPONSE_CODE, row)),
+                        messages[message]);
+                errors.computeIfAbsent(key, k -> new long[1])[0]++;
+            }
+        }
+    }
+
+    ResultStatistics merge(ResultStatistics other) {
+        other.labels.forEach((id, theirs) -> labels.merge(id, theirs, (ours, t) -> {
+            ours.merge(t);
+            return ours;
+        }));
+        other.timeSeries.forEach((start, theirs) -> {
+            long[] ours = timeSeries.computeIfAbsent(start, k -> new long[3]);
+            for (int i = 0; i < ours.length; i++) {
+                ours[i] += theirs[i];
+            }
+        });
+        other.errors.forEach((key, count) -> errors.computeIfAbsent(key, k -> new long[1])[0] += count[0]);
+        return this;
+    }
+
+    /** Canonical label id to that label's statistics. */
+    TreeMap<Integer, LabelStatistics> labels() {
+        return labels;
+    }
+
+    LabelStatistics total() {
+        LabelStatistics total = new LabelStatistics();
+        for (LabelStatistics label : labels.values()) {
+            total.merge(label);
+        }
+        return total;
+    }
+
+    long intervalMillis() {
+        return intervalMillis;
+    }
+
+    /** Interval start to {samples, summed elapsed, errors}. */
+    TreeMap<Long, long[]> timeSeries() {
+        return timeSeries;
+    }
+
+    /** [response code, failure or response message] to the error count. */
+    Map<List<String>, long[]> errors() {
+        return errors;
+    }
+
+    static final class LabelStatistics {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        long samples;
+        long errors;
+        long elapsedSum;
+        long elapsedMin = Long.MAX_VALUE;
+        long elapsedMax = Long.MIN_VALUE;
+        long bytes;
+        long sentBytes;
+        long firstStart = Long.MAX_VALUE;
+        long lastEnd = Long.MIN_VALUE;
+
+        void record(long timeStamp, long elapsed, boolean success, long received, long sent) {
+            samples++;
+            if (!success) {
+                errors++;
+            }
+            elapsedSum += elapsed;
+            elapsedMin = Math.min(elapsedMin, elapsed);
+            elapsedMax = Math.max(elapsedMax, elapsed);
+            bytes += received;
+            sentBytes += sent;
+            firstStart = Math.min(firstStart, timeStamp);
+            lastEnd = Math.max(lastEnd, timeStamp + elapsed);
+            histogram.record(elapsed);
+        }
+
+        void merge(LabelStatistics other) {
+            samples += other.samples;
+            errors += other.errors;
+            elapsedSum += other.elapsedSum;
+            elapsedMin = Math.min(elapsedMin, other.elapsedMin);
+            elapsedMax = Math.max(elapsedMax, other.elapsedMax);
+            bytes += other.bytes;
+            sentBytes += other.sentBytes;
+            firstStart = Math.min(firstStart, other.firstStart);
+            lastEnd = Math.max(lastEnd, other.lastEnd);
+            histogram.merge(other.histogram);
+        }
+
+        /** Seconds between the first sample start and the last sample end, as JMeter's summary uses. */
+        double durationSeconds() {
+            return samples == 0 ? 0 : Math.max(1, lastEnd - firstStart) / 1000.0;
+        }
+    }
+}
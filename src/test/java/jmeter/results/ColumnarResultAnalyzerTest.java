@@ -0,0 +1,110 @@
+package jmeter.results;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static jmeter.results.ColumnarResultWriterTest.sample;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnarResultAnalyzerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exportsEveryFieldAsJMeterCsv() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 16)) {
+            ColumnarSample ok = sample("Login", 1_700_000_000_000L, 120);
+            ok.bytes = 2048;
+            ok.sentBytes = 300;
+            ok.grpThreads = 2;
+            ok.allThreads = 4;
+            ok.latency = 80;
+            ok.idleTime = 1;
+            ok.connect = 9;
+            writer.write(ok);
+
+            ColumnarSample failed = sample("Login", 1_700_000_000_050L, 30);
+            failed.responseCode = "500";
+            failed.responseMessage = "Server Error";
+            failed.success = false;
+            failed.failureMessage = "Expected \"ok\",\ngot error";
+            failed.url = "http://localhost/login?a=1,b=2";
+            writer.write(failed);
+        }
+
+        Path csv = dir.resolve("results.csv");
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertEquals(2, ColumnarResultAnalyzer.exportCsv(reader, csv));
+        }
+
+        String expected = ColumnarResultAnalyzer.CSV_HEADER + "\n"
+                + "1700000000000,120,Login,200,OK,Thread Group 1-1,text,true,,2048,300,2,4,"
+                + "http://localhost/Login,80,1,9\n"
+                + "1700000000050,30,Login,500,Server Error,Thread Group 1-1,text,false,"
+                + "\"Expected \"\"ok\"\",\ngot error\",0,0,0,0,\"http://localhost/login?a=1,b=2\",0,0,0\n";
+        assertEquals(expected, new String(Files.readAllBytes(csv), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void summarizesLabelsAndErrors() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 8)) {
+            for (int i = 1; i <= 100; i++) {
+                ColumnarSample search = sample("Search", 60_000L * (i % 2), i);
+                if (i % 10 == 0) {
+                    search.success = false;
+                    search.responseCode = "404";
+                    search.responseMessage = "Not Found";
+                }
+                writer.write(search);
+            }
+            writer.write(sample("Login", 0, 7));
+        }
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            ResultStatistics statistics = ColumnarResultAnalyzer.summarize(reader, 60_000);
+            assertEquals(2, statistics.labels().size());
+
+            ResultStatistics.LabelStatistics search = null;
+            for (Map.Entry<Integer, ResultStatistics.LabelStatistics> label
+                    : statistics.labels().entrySet()) {
+                if ("Search".equals(reader.string(label.getKey()))) {
+                    search = label.getValue();
+                }
+            }
+            assertEquals(100, search.samples);
+            assertEquals(10, search.errors);
+            assertEquals(50, search.histogram.percentile(50));
+            assertEquals(90, search.histogram.percentile(90));
+            assertEquals(101, statistics.total().samples);
+
+            assertEquals(2, statistics.timeSeries().size());
+            assertEquals(51, statistics.timeSeries().get(0L)[0]);
+            assertEquals(50, statistics.timeSeries().get(60_000L)[0]);
+
+            List<String> notFound = Arrays.asList("404", "Not Found");
+            assertEquals(1, statistics.errors().size());
+            assertEquals(10, statistics.errors().get(notFound)[0]);
+        }
+    }
+
+    @Test
+    void quotesLikeJMeterCsv() {
+        assertEquals("plain text", ColumnarResultAnalyzer.quote("plain text"));
+        assertEquals("", ColumnarResultAnalyzer.quote(""));
+        assertEquals("\"a,b\"", ColumnarResultAnalyzer.quote("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", ColumnarResultAnalyzer.quote("say \"hi\""));
+        assertEquals("\"line1\nline2\"", ColumnarResultAnalyzer.quote("line1\nline2"));
+        assertEquals("\"line1\r\nline2\"", ColumnarResultAnalyzer.quote("line1\r\nline2"));
+    }
+}
@@ -0,0 +1,142 @@
+package jmeter.results;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static jmeter.results.ColumnarResultWriterTest.sample;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarResultReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ignoresIncompleteTail() throws IOException {
+        Path file = writeThreeBlocks();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertTrue(reader.isTruncated());
+            assertEquals(2, reader.blocks().size());
+            assertEquals(2, reader.blocks().get(1).rows());
+        }
+    }
+
+    @Test
+    void stopsAtCorruptRecordInsteadOfFailing() throws IOException {
+        Path file = writeThreeBlocks();
+        byte[] bytes = Files.readAllBytes(file);
+        int firstBlockEnd = endOfFirstBlock(bytes);
+        ByteBuffer partial = ByteBuffer.allocate(ColumnarFormat.RECORD_HEADER_BYTES + ColumnarFormat.BLOCK_HEADER_BYTES);
+        partial.put(ColumnarFormat.RECORD_BLOCK).putInt(443).putInt(1).putInt(0).putLong(0).putInt(0);
+        byte[] corrupted = new byte[bytes.length + partial.capacity()];
+        System.arraycopy(bytes, 0, corrupted, 0, firstBlockEnd);
+        System.arraycopy(partial.array(), 0, corrupted, firstBlockEnd, partial.capacity());
+        System.arraycopy(bytes, firstBlockEnd, corrupted, firstBlockEnd + partial.capacity(),
+                bytes.length - firstBlockEnd);
+        Files.write(file, corrupted);
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertTrue(reader.isTruncated());
+            assertEquals(firstBlockEnd, reader.validLength());
+            assertEquals(1, reader.blocks().size());
+            assertEquals("Search", reader.string(reader.blocks().get(0).labelId()));
+        }
+    }
+
+    @Test
+    void stopsAtBlockWithUnknownSharedStringId() throws IOException {
+        assertSecondBlockRejected((bytes, payload) ->
+                bytes.putInt(columnStart(payload, ColumnarFormat.THREAD_NAME) + 4, 1_000));
+    }
+
+    @Test
+    void stopsAtBlockWithUnknownLocalStringId() throws IOException {
+        assertSecondBlockRejected((bytes, payload) -> bytes.putInt(columnStart(payload, ColumnarFormat.URL), 3));
+    }
+
+    @Test
+    void stopsAtBlockWithUnorderedLocalStringOffsets() throws IOException {
+        assertSecondBlockRejected((bytes, payload) ->
+                bytes.putInt(columnStart(payload, ColumnarFormat.COLUMN_COUNT), 30));
+    }
+
+    @Test
+    void readsCompleteFileWithoutTruncation() throws IOException {
+        Path file = writeThreeBlocks();
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertFalse(reader.isTruncated());
+            assertEquals(Files.size(file), reader.validLength());
+            assertEquals(3, reader.blocks().size());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("results.csv");
+        Files.write(file, "timeStamp,elapsed,label\n".getBytes("UTF-8"));
+        assertThrows(IOException.class, () -> ColumnarResultReader.open(file));
+    }
+
+    /** Corrupts the second of three blocks and checks that reading stops right before it. */
+    private void assertSecondBlockRejected(BlockCorruption corruption) throws IOException {
+        Path file = writeThreeBlocks();
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int secondBlock = endOfFirstBlock(bytes.array());
+        corruption.apply(bytes, secondBlock + ColumnarFormat.RECORD_HEADER_BYTES);
+        Files.write(file, bytes.array());
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertTrue(reader.isTruncated());
+            assertEquals(secondBlock, reader.validLength());
+            assertEquals(1, reader.blocks().size());
+        }
+    }
+
+    /** Offset of a column in a two-row block; {@code COLUMN_COUNT} gives the dictionary offsets. */
+    private static int columnStart(int payload, int column) {
+        int body = payload + ColumnarFormat.BLOCK_HEADER_BYTES;
+        return column == ColumnarFormat.COLUMN_COUNT
+                ? body + ColumnarFormat.ROW_BYTES * 2
+                : body + ColumnarFormat.columnOffset(column, 2);
+    }
+
+    private interface BlockCorruption {
+        void apply(ByteBuffer bytes, int payload);
+    }
+
+    private Path writeThreeBlocks() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 2)) {
+            for (int i = 0; i < 6; i++) {
+                writer.write(sample("Search", 1_000 + i, i));
+            }
+        }
+        return file;
+    }
+
+    /** Walks records from the file header up to and including the first block. */
+    private static int endOfFirstBlock(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int position = ColumnarFormat.FILE_HEADER_BYTES;
+        while (true) {
+            byte type = buffer.get(position);
+            int length = buffer.getInt(position + 1);
+            position += ColumnarFormat.RECORD_HEADER_BYTES + length;
+            if (type == ColumnarFormat.RECORD_BLOCK) {
+                return position;
+            }
+        }
+    }
+}
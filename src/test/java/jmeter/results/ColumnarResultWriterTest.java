@@ -0,0 +1,336 @@
+package jmeter.results;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarResultWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackEveryField() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        ColumnarSample written = sample("Login", 1_700_000_000_123L, 250);
+        written.responseCode = "500";
+        written.responseMessage = "Internal Server Error";
+        written.threadName = "Thread Group 1-7";
+        written.dataType = "bin";
+        written.success = false;
+        written.failureMessage = "Assertion failed, \"expected\" 200";
+        written.bytes = 4567;
+        written.sentBytes = 89;
+        written.grpThreads = 7;
+        written.allThreads = 12;
+        written.url = "http://localhost/login?user=a,b";
+        written.latency = 120;
+        written.idleTime = 3;
+        written.connect = 15;
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 16)) {
+            writer.write(written);
+        }
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertFalse(reader.isTruncated());
+            List<ColumnarResultReader.Block> blocks = reader.blocks();
+            assertEquals(1, blocks.size());
+            ColumnarResultReader.Block block = blocks.get(0);
+            assertEquals(1, block.rows());
+            assertEquals("Login", reader.string(block.labelId()));
+            assertEquals(1_700_000_000_123L, block.nextTimestamp(0, 0));
+            assertEquals(250, block.getInt(ColumnarFormat.ELAPSED, 0));
+            assertEquals("500", reader.string(block.getInt(ColumnarFormat.RESPONSE_CODE, 0)));
+            assertEquals("Internal Server Error", block.localString(block.getInt(ColumnarFormat.RESPONSE_MESSAGE, 0)));
+            assertEquals("Thread Group 1-7", reader.string(block.getInt(ColumnarFormat.THREAD_NAME, 0)));
+            assertEquals("bin", reader.string(block.getInt(ColumnarFormat.DATA_TYPE, 0)));
+            assertFalse(block.isSuccess(0));
+            assertEquals("Assertion failed, \"expected\" 200",
+                    block.localString(block.getInt(ColumnarFormat.FAILURE_MESSAGE, 0)));
+            assertEquals(4567, block.getInt(ColumnarFormat.BYTES, 0));
+            assertEquals(89, block.getInt(ColumnarFormat.SENT_BYTES, 0));
+            assertEquals(7, block.getInt(ColumnarFormat.GRP_THREADS, 0));
+            assertEquals(12, block.getInt(ColumnarFormat.ALL_THREADS, 0));
+            assertEquals("http://localhost/login?user=a,b", block.localString(block.getInt(ColumnarFormat.URL, 0)));
+            assertEquals(120, block.getInt(ColumnarFormat.LATENCY, 0));
+            assertEquals(3, block.getInt(ColumnarFormat.IDLE_TIME, 0));
+            assertEquals(15, block.getInt(ColumnarFormat.CONNECT, 0));
+        }
+    }
+
+    @Test
+    void keepsNegativeTimestampDeltasInTheSameBlock() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 16)) {
+            writer.write(sample("Search", 10_000, 5));
+            writer.write(sample("Search", 9_000, 1005));
+            writer.write(sample("Search", 9_500, 300));
+        }
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertEquals(1, reader.blocks().size());
+            ColumnarResultReader.Block block = reader.blocks().get(0);
+            long first = block.nextTimestamp(0, 0);
+            long second = block.nextTimestamp(first, 1);
+            long third = block.nextTimestamp(second, 2);
+            assertEquals(10_000, first);
+            assertEquals(9_000, second);
+            assertEquals(9_500, third);
+        }
+    }
+
+    @Test
+    void startsNewBlockWhenDeltaDoesNotFitFourBytes() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        long later = 1_000L + Integer.MAX_VALUE + 1;
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 16)) {
+            writer.write(sample("Search", 1_000, 5));
+            writer.write(sample("Search", later, 6));
+        }
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertEquals(2, reader.blocks().size());
+            assertEquals(1_000, reader.blocks().get(0).nextTimestamp(0, 0));
+            assertEquals(later, reader.blocks().get(1).nextTimestamp(0, 0));
+        }
+    }
+
+    @Test
+    void writesFullBlocksAsSoonAsTheyFill() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 2)) {
+            for (int i = 0; i < 5; i++) {
+                writer.write(sample("Search", 1_000 + i, i));
+            }
+            try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+                assertEquals(2, reader.blocks().size());
+                assertFalse(reader.isTruncated());
+            }
+        }
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertEquals(3, reader.blocks().size());
+            assertEquals(1, reader.blocks().get(2).rows());
+        }
+    }
+
+    @Test
+    void flushOlderThanWritesPartlyFilledBlocks() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 1024)) {
+            writer.write(sample("Rare", 1_000, 5));
+            writer.flushOlderThan(60_000);
+            try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+                assertTrue(reader.blocks().isEmpty());
+            }
+
+            writer.flushOlderThan(0);
+            try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+                assertEquals(1, reader.blocks().size());
+                assertEquals("Rare", reader.string(reader.blocks().get(0).labelId()));
+            }
+        }
+    }
+
+    @Test
+    void reissuedLabelResolvesToOneCanonicalId() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        try (ColumnarResultWriter writer = ColumnarResultWriter.open(file, 1)) {
+            writer.write(sample("Rare", 1_000, 5));
+            for (int i = 0; i <= ColumnarResultWriter.MAX_SHARED_STRINGS; i++) {
+                ColumnarSample busy = sample("Busy", 1_000 + i, 1);
+                busy.threadName = "thread-" + i;
+                writer.write(busy);
+            }
+            writer.write(sample("Rare", 2_000_000, 7));
+        }
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            List<ColumnarResultReader.Block> blocks = reader.blocks();
+            ColumnarResultReader.Block first = blocks.get(0);
+            ColumnarResultReader.Block last = blocks.get(blocks.size() - 1);
+            assertEquals("Rare", reader.string(first.labelId()));
+            assertEquals(first.labelId(), last.labelId());
+            assertTrue(reader.stringCount() > ColumnarResultWriter.MAX_SHARED_STRINGS + 3,
+                    "evicted label should have been written again");
+        }
+    }
+
+    @Test
+    void rejectsWritesAfterClose() throws IOException {
+        ColumnarResultWriter writer = ColumnarResultWriter.open(dir.resolve("results.jcol"), 16);
+        writer.close();
+        assertThrows(IOException.class, () -> writer.write(sample("Login", 1_000, 5)));
+    }
+
+    @Test
+    void rollsBackPartialWriteAndStops() throws IOException {
+        Path file = dir.resolve("results.jcol");
+        FailingChannel channel = new FailingChannel(FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        ColumnarResultWriter writer = ColumnarResultWriter.open(channel, 2);
+        for (int i = 0; i < 4; i++) {
+            writer.write(sample("Search", 1_000 + i, i));
+        }
+        long lastCompleteRecord = Files.size(file);
+
+        channel.failNextWrite = true;
+        writer.write(sample("Search", 2_000, 5));
+        assertThrows(IOException.class, () -> writer.write(sample("Search", 2_001, 6)));
+        assertTrue(channel.partiallyWritten, "the failing write should have left partial bytes behind");
+
+        assertEquals(lastCompleteRecord, Files.size(file));
+        assertTrue(writer.isFailed());
+        assertThrows(IOException.class, () -> writer.write(sample("Search", 2_002, 7)));
+        writer.close();
+        assertEquals(lastCompleteRecord, Files.size(file));
+
+        try (ColumnarResultReader reader = ColumnarResultReader.open(file)) {
+            assertFalse(reader.isTruncated());
+            assertEquals(2, reader.blocks().size());
+        }
+    }
+
+    static ColumnarSample sample(String label, long timeStamp, long elapsed) {
+        ColumnarSample sample = new ColumnarSample();
+        sample.label = label;
+        sample.timeStamp = timeStamp;
+        sample.elapsed = elapsed;
+        sample.responseCode = "200";
+        sample.responseMessage = "OK";
+        sample.threadName = "Thread Group 1-1";
+        sample.dataType = "text";
+        sample.success = true;
+        sample.failureMessage = "";
+        sample.url = "http://localhost/" + label;
+        return sample;
+    }
+
+    /** Delegating channel whose next gathering write stops after a few bytes and throws. */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        boolean failNextWrite;
+        boolean partiallyWritten;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (!failNextWrite) {
+                return delegate.write(srcs, offset, length);
+            }
+            failNextWrite = false;
+            for (int i = offset; i < offset + length; i++) {
+                if (srcs[i].hasRemaining()) {
+                    ByteBuffer part = srcs[i].duplicate();
+                    part.limit(part.position() + Math.min(part.remaining(), 10));
+                    srcs[i].position(srcs[i].position() + delegate.write(part));
+                    partiallyWritten = true;
+                    break;
+                }
+            }
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package jmeter.results;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void isExactBelowOneSecond() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(500, histogram.percentile(50));
+        assertEquals(900, histogram.percentile(90));
+        assertEquals(990, histogram.percentile(99));
+        assertEquals(1000, histogram.percentile(100));
+    }
+
+    @Test
+    void switchesToEightMillisecondBucketsAt1024() {
+        long[][] expected = {{1022, 1022}, {1023, 1023}, {1024, 1031}, {1025, 1031}, {1031, 1031}, {1032, 1039}};
+        for (long[] pair : expected) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(1);
+            histogram.record(pair[0]);
+            histogram.record(100_000);
+            assertEquals(pair[1], histogram.percentile(50), "median bucket of " + pair[0]);
+        }
+    }
+
+    @Test
+    void bucketsAtPowersOfTwoStayWithinPrecision() {
+        for (int exponent = 10; exponent <= 30; exponent++) {
+            long power = 1L << exponent;
+            for (long value : new long[]{power - 1, power, power + 1}) {
+                LatencyHistogram histogram = new LatencyHistogram();
+                histogram.record(value);
+                histogram.record(Integer.MAX_VALUE);
+                long reported = histogram.percentile(50);
+                assertTrue(reported >= value, value + " reported as " + reported);
+                assertTrue(reported - value <= value / 128, value + " reported as " + reported);
+            }
+        }
+    }
+
+    @Test
+    void neverReportsMoreThanTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2049);
+        assertEquals(2049, histogram.percentile(99));
+    }
+
+    @Test
+    void mergeAddsCounts() {
+        LatencyHistogram low = new LatencyHistogram();
+        LatencyHistogram high = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            low.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            high.record(50_000);
+        }
+        low.merge(high);
+        assertEquals(10, low.percentile(90));
+        assertEquals(50_000, low.percentile(91));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+}